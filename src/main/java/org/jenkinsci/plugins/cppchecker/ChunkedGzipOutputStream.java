@@ -0,0 +1,199 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the report as a sequence of independent gzip members.
+ *
+ * <p>
+ * The result is a regular gzip file which {@code zcat} or
+ * {@link java.util.zip.GZIPInputStream} read as a whole. A chunk is closed at
+ * the first line end after {@code chunkSize} bytes, so a chunk normally starts
+ * at the beginning of a line. A line longer than about twice
+ * {@code chunkSize} is cut in the middle, but never inside a UTF-8 character.
+ * When the stream is closed, the offsets of all chunks are written to the
+ * index stream, which lets {@link ChunkedGzipReader} inflate a single chunk.
+ * An empty report is written as one empty chunk.
+ */
+final class ChunkedGzipOutputStream extends OutputStream {
+
+    /** The first line of every index file. */
+    static final String INDEX_HEADER = "cppchecker-gzip-index 1";
+
+    /** Chunk size used by the builder. */
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final CountingOutputStream out;
+    private final OutputStream index;
+    private final int chunkSize;
+
+    private final ByteArrayOutputStream chunk;
+    private final List<long[]> chunks = new ArrayList<long[]>();
+    private long uncompressed;
+    private boolean closed;
+
+    /**
+     * @param out Compressed report
+     * @param index Chunk index, written and closed by {@link #close()}
+     * @param chunkSize Uncompressed size of a chunk, in bytes
+     */
+    ChunkedGzipOutputStream(OutputStream out, OutputStream index, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.out = new CountingOutputStream(out);
+        this.index = index;
+        this.chunkSize = chunkSize;
+        this.chunk = new ByteArrayOutputStream(chunkSize + 4096);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (isForcedCut(chunk.size(), b)) {
+            writeChunk();
+        }
+        chunk.write(b);
+        if (isLineEnd(chunk.size(), b)) {
+            writeChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int start = off;
+        int end = off + len;
+
+        for (int i = off; i < end; i++) {
+            if (isForcedCut(chunk.size() + (i - start), b[i])) {
+                chunk.write(b, start, i - start);
+                writeChunk();
+                start = i;
+            }
+            if (isLineEnd(chunk.size() + (i + 1 - start), b[i])) {
+                chunk.write(b, start, i + 1 - start);
+                writeChunk();
+                start = i + 1;
+            }
+        }
+        chunk.write(b, start, end - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            writeChunk();
+            if (chunks.isEmpty()) {
+                /* An empty file is not valid gzip, write one empty member. */
+                writeMember();
+            }
+        } finally {
+            try {
+                out.close();
+            } finally {
+                writeIndex();
+            }
+        }
+    }
+
+    /* Cut after a line end once the chunk is full. */
+    private boolean isLineEnd(long size, int b) {
+        return size >= chunkSize && b == '\n';
+    }
+
+    /* Cut before b once the chunk is twice as large, unless b continues a UTF-8 character. */
+    private boolean isForcedCut(long size, int b) {
+        return size >= 2L * chunkSize && (b & 0xC0) != 0x80;
+    }
+
+    private void writeChunk() throws IOException {
+        if (chunk.size() == 0) {
+            return;
+        }
+        writeMember();
+    }
+
+    private void writeMember() throws IOException {
+        long offset = out.getCount();
+        GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out), 8192);
+        chunk.writeTo(gzip);
+        gzip.finish();
+        gzip.close();
+
+        chunks.add(new long[]{uncompressed, chunk.size(), offset, out.getCount() - offset});
+        uncompressed += chunk.size();
+        chunk.reset();
+    }
+
+    private void writeIndex() throws IOException {
+        Writer writer = new OutputStreamWriter(index, "UTF-8");
+
+        try {
+            writer.write(INDEX_HEADER + "\n");
+            for (long[] c : chunks) {
+                writer.write(c[0] + " " + c[1] + " " + c[2] + " " + c[3] + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
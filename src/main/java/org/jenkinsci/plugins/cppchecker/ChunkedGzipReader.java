@@ -0,0 +1,146 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Random access to a report written by {@link ChunkedGzipOutputStream}.
+ *
+ * <p>
+ * Only the requested chunk is read from disk and inflated, so a reader can
+ * jump to any part of an archived report without inflating the whole file.
+ */
+public final class ChunkedGzipReader {
+
+    private final File data;
+    private final List<long[]> chunks = new ArrayList<long[]>();
+
+    /**
+     * @param data Compressed report
+     * @param index Chunk index written next to the report
+     * @throws IOException If the index cannot be read or is not valid
+     */
+    public ChunkedGzipReader(File data, File index) throws IOException {
+        this.data = data;
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(index), "UTF-8"));
+        try {
+            if (!ChunkedGzipOutputStream.INDEX_HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a chunk index: " + index);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 4) {
+                    throw new IOException("Invalid chunk index entry in " + index + ": " + line);
+                }
+                try {
+                    chunks.add(new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3])});
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid chunk index entry in " + index + ": " + line, ex);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * @return Size of the uncompressed report, in bytes
+     */
+    public long getLength() {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        long[] last = chunks.get(chunks.size() - 1);
+        return last[0] + last[1];
+    }
+
+    /**
+     * @param chunk Chunk number
+     * @return Offset of the chunk in the uncompressed report
+     * @throws IOException If there is no such chunk
+     */
+    public long getOffset(int chunk) throws IOException {
+        return entry(chunk)[0];
+    }
+
+    /**
+     * Find the chunk containing an offset of the uncompressed report.
+     *
+     * @param offset Offset in the uncompressed report
+     * @return Chunk number, -1 if the offset is outside the report
+     */
+    public int findChunk(long offset) {
+        int low = 0;
+        int high = chunks.size() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long[] c = chunks.get(mid);
+            if (offset < c[0]) {
+                high = mid - 1;
+            } else if (offset >= c[0] + c[1]) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read and inflate one chunk.
+     *
+     * @param chunk Chunk number
+     * @return Uncompressed content of the chunk, closed by the caller
+     * @throws IOException If there is no such chunk, or the report cannot be
+     * read or is shorter than the index says
+     */
+    public InputStream openChunk(int chunk) throws IOException {
+        long[] c = entry(chunk);
+
+        if (c[2] < 0 || c[3] < 0 || c[3] > Integer.MAX_VALUE || c[2] + c[3] > data.length()) {
+            throw new IOException("Chunk " + chunk + " at " + c[2] + "+" + c[3]
+                    + " is outside " + data + " of " + data.length() + " bytes, the report is truncated");
+        }
+        byte[] compressed = new byte[(int) c[3]];
+
+        RandomAccessFile file = new RandomAccessFile(data, "r");
+        try {
+            file.seek(c[2]);
+            file.readFully(compressed);
+        } finally {
+            file.close();
+        }
+
+        return new GZIPInputStream(new ByteArrayInputStream(compressed));
+    }
+
+    private long[] entry(int chunk) throws IOException {
+        if (chunk < 0 || chunk >= chunks.size()) {
+            throw new IOException("No chunk " + chunk + " in " + data + ", it has " + chunks.size() + " chunks");
+        }
+        return chunks.get(chunk);
+    }
+}
@@ -0,0 +1,145 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.util.ArgumentListBuilder;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Runs cppcheck on the node which holds the workspace.
+ *
+ * <p>
+ * The suppressions are loaded, the report is filtered and compressed, and the
+ * result is written on that node, so the uncompressed report never crosses
+ * the network and does not load the controller. Only the log lines, such as
+ * the suppression summary, are sent back.
+ */
+final class CppcheckCallable extends MasterToSlaveFileCallable<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ArgumentListBuilder args;
+    private final String name;
+    private final boolean compress;
+    private final String suppressFiles;
+    private final String suppressList;
+    private final boolean xml;
+    private final TaskListener listener;
+
+    /**
+     * @param args Command line of cppcheck
+     * @param name Report file, relative to the workspace
+     * @param compress Write the report as chunked gzip with an index at
+     * [name].idx
+     * @param suppressFiles Suppression files in the workspace, may be null
+     * @param suppressList Inline suppressions, may be null
+     * @param xml Whether cppcheck writes an xml report
+     * @param listener Build log
+     */
+    CppcheckCallable(ArgumentListBuilder args, String name, boolean compress,
+            String suppressFiles, String suppressList, boolean xml, TaskListener listener) {
+        this.args = args;
+        this.name = name;
+        this.compress = compress;
+        this.suppressFiles = suppressFiles;
+        this.suppressList = suppressList;
+        this.xml = xml;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Exit code of cppcheck
+     */
+    @Override
+    public Integer invoke(File dir, VirtualChannel channel) throws IOException, InterruptedException {
+        FilePath workspace = new FilePath(dir);
+        FilePath of = workspace.child(name);
+        SuppressionIndex index;
+
+        /* Without its suppressions the report would be wrong, do not run at all. */
+        try {
+            index = loadSuppressions(workspace);
+        } catch (IOException ex) {
+            ex.printStackTrace(listener.error("[Cppchecker] " + "Cannot load the suppressions."));
+            throw new AbortException("[Cppchecker] " + "Cannot load the suppressions: " + ex.getMessage());
+        }
+
+        SuppressionFilter filter = null;
+        OutputStream report = of.write();
+
+        if (compress) {
+            report = new ChunkedGzipOutputStream(report, workspace.child(name + ".idx").write(),
+                    ChunkedGzipOutputStream.DEFAULT_CHUNK_SIZE);
+        }
+
+        if (!index.isEmpty()) {
+            filter = new SuppressionFilter(report, index);
+            report = filter;
+        }
+
+        int exitCode;
+        try {
+            exitCode = new Launcher.LocalLauncher(listener).launch().cmds(args)
+                    .stderr(report).stdout(listener.getLogger()).pwd(workspace).join();
+        } finally {
+            report.close();
+        }
+
+        if (filter != null) {
+            filter.report(listener.getLogger());
+        }
+
+        return exitCode;
+    }
+
+    private SuppressionIndex loadSuppressions(FilePath workspace)
+            throws IOException, InterruptedException {
+        SuppressionIndex index = new SuppressionIndex();
+
+        if (suppressFiles != null) {
+            for (String pattern : suppressFiles.split(",")) {
+                if (pattern.trim().length() == 0) {
+                    continue;
+                }
+
+                FilePath[] files = workspace.list(pattern.trim());
+                if (files.length == 0) {
+                    listener.getLogger().println("[Cppchecker] " + "WARNING: Suppression files '"
+                            + pattern.trim() + "' match no file in the workspace.");
+                }
+                for (FilePath file : files) {
+                    Reader in = new InputStreamReader(file.read(), "UTF-8");
+                    try {
+                        index.load(in, file.getRemote());
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        }
+
+        if (suppressList != null && suppressList.trim().length() > 0) {
+            index.load(new StringReader(suppressList), "inline");
+        }
+
+        if (!index.isEmpty()) {
+            listener.getLogger().println("[Cppchecker] " + "Loaded " + index.size() + " suppressions.");
+            if (!xml) {
+                listener.getLogger().println("[Cppchecker] " + "WARNING: Suppressions are only applied "
+                        + "to the xml report, check --xml to use them.");
+            }
+        }
+
+        return index;
+    }
+}
@@ -1,5 +1,6 @@
 package org.jenkinsci.plugins.cppchecker;
 
+import hudson.AbortException;
 import hudson.Launcher;
 import hudson.Extension;
 import hudson.FilePath;
@@ -11,6 +12,7 @@ import hudson.tasks.Builder;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.util.ArgumentListBuilder;
 import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.BuildListenerAdapter;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
@@ -18,7 +20,8 @@ import org.kohsuke.stapler.QueryParameter;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +43,8 @@ import java.util.logging.Logger;
 public class Cppchecker extends Builder implements SimpleBuildStep {
 
     private final String oFile;
+    private final boolean compress;
+    private final boolean archive;
     private final String target;
 
     private final boolean dump;
@@ -73,6 +78,10 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
     private final boolean unusedFunc;
     private final boolean varScope;
 
+    /* Suppressions applied to the report */
+    private final String suppressFiles;
+    private final String suppressList;
+
     private final boolean verbose;
 
     private final boolean xml;
@@ -80,16 +89,19 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
 
     // Fields in config.jelly must match the parameter names in the "DataBoundConstructor"
     @DataBoundConstructor
-    public Cppchecker(String oFile, String target, boolean dump, String symbol,
+    public Cppchecker(String oFile, boolean compress, boolean archive, String target, boolean dump, String symbol,
             boolean enAll, boolean enWarn, boolean enStyle,
             boolean enPerformance, boolean enPortability, boolean enInfo,
             boolean enUnusedFunc, boolean enMissingInc,
             boolean force, String includeDir, boolean inconclusive, boolean quiet,
             boolean posix, boolean c89, boolean c99, boolean c11, boolean cpp03, boolean cpp11,
             boolean unmatchSuppress, boolean unusedFunc, boolean varScope,
+            String suppressFiles, String suppressList,
             boolean verbose, boolean xml, boolean xmlVer
     ) {
         this.oFile = oFile;
+        this.compress = compress;
+        this.archive = archive;
         this.target = target;
 
         this.dump = dump;
@@ -123,6 +135,10 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
         this.unusedFunc = unusedFunc;
         this.varScope = varScope;
 
+        /* Suppressions applied to the report */
+        this.suppressFiles = suppressFiles;
+        this.suppressList = suppressList;
+
         this.verbose = verbose;
 
         this.xml = xml;
@@ -138,6 +154,27 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
         return oFile;
     }
 
+    /**
+     * Write the report as chunked gzip to [oFile].gz, with the offsets of
+     * the chunks in [oFile].gz.idx. See {@link ChunkedGzipReader}.
+     *
+     * @return true: Compressed report<br>
+     * false: Uncompressed report at [oFile]
+     */
+    public boolean getCompress() {
+        return compress;
+    }
+
+    /**
+     * Copy the report, as written, to the build directory.
+     *
+     * @return true: Archive the report<br>
+     * false: Keep the report in the workspace only
+     */
+    public boolean getArchive() {
+        return archive;
+    }
+
     public String getTarget() {
         return target;
     }
@@ -343,6 +380,29 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
         return varScope;
     }
 
+    /**
+     * Suppression files in the workspace, applied to the report after
+     * cppcheck wrote it. Several Ant-style patterns can be separated by
+     * commas, each file uses the format [error id]:[filename]:[line].
+     *
+     * @return null or empty: No suppression file<br>
+     * patterns: Suppression files
+     */
+    public String getSuppressFiles() {
+        return suppressFiles;
+    }
+
+    /**
+     * Inline suppressions, one [error id]:[filename]:[line] per line, applied
+     * together with {@link #getSuppressFiles()}.
+     *
+     * @return null or empty: No inline suppression<br>
+     * suppressions: Inline suppressions
+     */
+    public String getSuppressList() {
+        return suppressList;
+    }
+
     public boolean getVerbose() {
         return verbose;
     }
@@ -463,8 +523,44 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
         return args;
     }
 
+    /**
+     * Check that a file name stays inside the workspace, so the report can
+     * neither be written nor archived anywhere else.
+     *
+     * @param name File name relative to the workspace
+     * @return true: Relative path without '..'<br>
+     * false: Empty, absolute or escaping the workspace
+     */
+    static boolean isWorkspacePath(String name) {
+        if (name == null || name.trim().length() == 0) {
+            return false;
+        }
+
+        String path = name.trim().replace('\\', '/');
+        if (path.startsWith("/") || (path.length() > 1 && path.charAt(1) == ':')) {
+            return false;
+        }
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* The report is written either compressed or not, remove the other form. */
+    private static void removeStale(FilePath file, TaskListener listener)
+            throws IOException, InterruptedException {
+        if (file.exists()) {
+            file.delete();
+            listener.getLogger().println("[Cppchecker] " + "Removed stale report " + file.getName() + ".");
+        }
+    }
+
     @Override
-    public void perform(Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener) {
+    public void perform(Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener)
+            throws InterruptedException, IOException {
         /*
         // This also shows how you can consult the global configuration of the builder
         if (getDescriptor().getUseFrench()) {
@@ -475,12 +571,40 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
          */
 
         listener.getLogger().println("[Cppchecker] " + "Starting the cppcheck.");
+        if (!isWorkspacePath(this.oFile)) {
+            listener.error("[Cppchecker] " + "The output file '" + this.oFile
+                    + "' must be a relative path inside the workspace.");
+            throw new AbortException("[Cppchecker] " + "Invalid output file '" + this.oFile + "'.");
+        }
+
         try {
-            ArgumentListBuilder args = getArgs();
-            OutputStream out = listener.getLogger();
-            FilePath of = new hudson.FilePath(workspace.getChannel(), workspace + "/" + this.oFile.trim());
+            String plain = this.oFile.trim();
+            String name = plain + (compress ? ".gz" : "");
 
-            launcher.launch().cmds(args).stderr(of.write()).stdout(out).pwd(workspace).join();
+            if (compress) {
+                removeStale(new hudson.FilePath(workspace.getChannel(), workspace + "/" + plain), listener);
+            } else {
+                removeStale(new hudson.FilePath(workspace.getChannel(), workspace + "/" + plain + ".gz"), listener);
+                removeStale(new hudson.FilePath(workspace.getChannel(), workspace + "/" + plain + ".gz.idx"), listener);
+            }
+
+            /* Filter and compress next to cppcheck, only the log comes back. */
+            workspace.act(new CppcheckCallable(getArgs(), name, compress,
+                    suppressFiles, suppressList, xml, listener));
+
+            if (archive) {
+                /* Archived as written, a compressed report is not inflated again. */
+                Map<String, String> artifacts = new LinkedHashMap<String, String>();
+                artifacts.put(name, name);
+                if (compress) {
+                    artifacts.put(name + ".idx", name + ".idx");
+                }
+                build.pickArtifactManager().archive(workspace, launcher,
+                        BuildListenerAdapter.wrap(listener), artifacts);
+                listener.getLogger().println("[Cppchecker] " + "Archived " + artifacts.keySet() + ".");
+            }
+        } catch (AbortException ex) {
+            throw ex;
         } catch (IOException | InterruptedException ex) {
             Logger.getLogger(Cppchecker.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -618,6 +742,10 @@ public class Cppchecker extends Builder implements SimpleBuildStep {
 
             String command, options;
 
+            if (!isWorkspacePath(value)) {
+                return FormValidation.error("The output file must be a relative path inside the workspace.");
+            }
+
             options = getOptions(value, target, dump, symbol,
                     enAll, enWarn, enStyle, enPerformance, enPortability, enInfo,
                     enUnusedFunc, enMissingInc,
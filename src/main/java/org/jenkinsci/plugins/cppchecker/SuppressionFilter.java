@@ -0,0 +1,301 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops suppressed findings from the cppcheck XML report while it is written.
+ *
+ * <p>
+ * The report is split into tags in a single pass, so attributes containing
+ * raw line ends or '&gt;' inside quotes are handled, and the bytes which are
+ * kept are written unchanged. Both XML versions are understood: version 1
+ * writes each finding as one {@code <error file="" line="" id=""/>} tag,
+ * version 2 writes an {@code <error id="">} element whose first
+ * {@code <location>} is the primary location. Everything else is copied
+ * through unchanged.
+ *
+ * <p>
+ * An element larger than {@link #MAX_BLOCK} bytes is written out unfiltered
+ * instead of being held in memory.
+ */
+final class SuppressionFilter extends OutputStream {
+
+    /** The number of unused rules listed in the build log. */
+    private static final int MAX_UNUSED = 50;
+
+    /** The largest error element or tag held in memory, in bytes. */
+    static final int MAX_BLOCK = 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Pattern ID = attributePattern("id");
+    private static final Pattern FILE = attributePattern("file");
+    private static final Pattern LINE = attributePattern("line");
+
+    private final OutputStream out;
+    private final SuppressionIndex index;
+
+    /* Tag being read, from '<' up to the matching '>'. */
+    private final ByteArrayOutputStream tag = new ByteArrayOutputStream(256);
+    private boolean inTag;
+    private int quote;
+
+    /* Error element being read, from <error> up to </error>. */
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream(1024);
+    private boolean inBlock;
+    private String blockId;
+    private String blockFile;
+    private int blockLine;
+
+    private long findings;
+    private long suppressed;
+    private long unfiltered;
+    private long matchNanos;
+    private boolean closed;
+
+    SuppressionFilter(OutputStream out, SuppressionIndex index) {
+        this.out = new BufferedOutputStream(out, 8192);
+        this.index = index;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (inTag) {
+            tag.write(b);
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                processTag();
+                return;
+            }
+            if (tag.size() > MAX_BLOCK) {
+                /* Not a tag cppcheck writes, give up on it. */
+                sink().write(tag.toByteArray());
+                tag.reset();
+                inTag = false;
+                quote = 0;
+            }
+        } else if (b == '<') {
+            inTag = true;
+            tag.write(b);
+        } else {
+            sink().write(b);
+            if (inBlock && block.size() > MAX_BLOCK) {
+                flushBlock();
+            }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+
+        for (int i = off; i < end; i++) {
+            write(b[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        /* Never lose output because of a truncated report. */
+        try {
+            if (inBlock) {
+                flushBlock();
+            }
+            tag.writeTo(out);
+            tag.reset();
+        } finally {
+            out.close();
+        }
+    }
+
+    private OutputStream sink() {
+        return inBlock ? block : out;
+    }
+
+    private void processTag() throws IOException {
+        String text = new String(tag.toByteArray(), UTF8);
+        String name = tagName(text);
+
+        inTag = false;
+
+        if (inBlock && "error".equals(name)) {
+            /* Unterminated element, keep what was read and start again. */
+            flushBlock();
+        }
+
+        if (inBlock) {
+            tag.writeTo(block);
+            if ("location".equals(name) && blockFile == null) {
+                blockFile = attribute(text, FILE);
+                blockLine = toLine(attribute(text, LINE));
+            } else if ("/error".equals(name)) {
+                if (!isSuppressed(blockId, blockFile, blockLine)) {
+                    block.writeTo(out);
+                }
+                block.reset();
+                inBlock = false;
+            }
+            if (inBlock && block.size() > MAX_BLOCK) {
+                flushBlock();
+            }
+        } else if ("error".equals(name)) {
+            startError(text);
+        } else {
+            tag.writeTo(out);
+        }
+
+        tag.reset();
+    }
+
+    private void startError(String text) throws IOException {
+        if (text.endsWith("/>")) {
+            if (!isSuppressed(attribute(text, ID), attribute(text, FILE),
+                    toLine(attribute(text, LINE)))) {
+                tag.writeTo(out);
+            }
+        } else {
+            inBlock = true;
+            blockId = attribute(text, ID);
+            blockFile = null;
+            blockLine = 0;
+            tag.writeTo(block);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        block.writeTo(out);
+        block.reset();
+        inBlock = false;
+        unfiltered++;
+    }
+
+    private boolean isSuppressed(String id, String file, int lineNo) {
+        long start = System.nanoTime();
+        boolean match = index.matches(id, file, lineNo);
+
+        matchNanos += System.nanoTime() - start;
+        findings++;
+        if (match) {
+            suppressed++;
+        }
+
+        return match;
+    }
+
+    /**
+     * Print what was suppressed, the time spent matching and the rules which
+     * did not match anything.
+     *
+     * @param logger Build log
+     */
+    void report(PrintStream logger) {
+        List<SuppressionIndex.Rule> unused = index.getUnused();
+
+        logger.println("[Cppchecker] " + "Suppressed " + suppressed + " of " + findings
+                + " findings with " + index.size() + " suppressions in "
+                + TimeUnit.NANOSECONDS.toMillis(matchNanos) + " ms.");
+
+        if (unfiltered > 0) {
+            logger.println("[Cppchecker] " + "WARNING: " + unfiltered
+                    + " malformed or oversized error elements were kept unfiltered.");
+        }
+
+        if (unused.isEmpty()) {
+            return;
+        }
+        logger.println("[Cppchecker] " + unused.size() + " unused suppressions:");
+        for (int i = 0; i < unused.size() && i < MAX_UNUSED; i++) {
+            logger.println("[Cppchecker]   " + unused.get(i));
+        }
+        if (unused.size() > MAX_UNUSED) {
+            logger.println("[Cppchecker]   ... and " + (unused.size() - MAX_UNUSED) + " more");
+        }
+    }
+
+    long getFindings() {
+        return findings;
+    }
+
+    long getSuppressed() {
+        return suppressed;
+    }
+
+    long getUnfiltered() {
+        return unfiltered;
+    }
+
+    private static String tagName(String text) {
+        int end = 1;
+
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            if (Character.isWhitespace(c) || c == '>' || (c == '/' && end > 1)) {
+                break;
+            }
+            end++;
+        }
+
+        return text.substring(1, end);
+    }
+
+    private static int toLine(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private static Pattern attributePattern(String name) {
+        return Pattern.compile("\\s" + name + "\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+    }
+
+    private static String attribute(String tag, Pattern pattern) {
+        Matcher m = pattern.matcher(tag);
+
+        if (!m.find()) {
+            return null;
+        }
+
+        return unescape(m.group(1) != null ? m.group(1) : m.group(2));
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,329 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled set of suppression rules.
+ *
+ * <p>
+ * Rules use the cppcheck suppressions-list format
+ * <B>[error id]:[filename]:[line]</B>, one per line. The [filename] and
+ * [line] are optional, [error id] may be the wildcard '*' and [filename] may
+ * contain the wildcards '*' and '?'. Empty lines and lines starting with '#'
+ * or '//' are ignored.
+ *
+ * <p>
+ * Rules are indexed by error id and then by a trie over the literal leading
+ * directories of [filename], so matching a finding only looks at the rules
+ * that can apply to its path instead of the whole list.
+ */
+final class SuppressionIndex {
+
+    private static final String ANY_ID = "*";
+
+    private final Map<String, Bucket> byId = new HashMap<String, Bucket>();
+    private final List<Rule> rules = new ArrayList<Rule>();
+
+    /**
+     * Read all rules from a suppressions list.
+     *
+     * @param in Suppressions list, closed by the caller
+     * @param source Name of the list, used when reporting unused rules
+     * @throws IOException If the list cannot be read
+     */
+    void load(Reader in, String source) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int lineNo = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            add(line, source + ":" + lineNo);
+        }
+    }
+
+    /**
+     * Add one rule.
+     *
+     * @param spec Rule in the format [error id]:[filename]:[line]
+     * @param source Where the rule comes from
+     * @return true: The rule was added<br>
+     * false: The line is empty or a comment
+     */
+    boolean add(String spec, String source) {
+        String id, file;
+        int line = 0;
+
+        spec = spec.trim();
+        if (spec.length() == 0 || spec.startsWith("#") || spec.startsWith("//")) {
+            return false;
+        }
+
+        int sep = spec.indexOf(':');
+        if (sep < 0) {
+            id = spec;
+            file = "";
+        } else {
+            id = spec.substring(0, sep).trim();
+            file = spec.substring(sep + 1).trim();
+
+            int last = file.lastIndexOf(':');
+            if (last >= 0 && isNumber(file.substring(last + 1).trim())) {
+                line = Integer.parseInt(file.substring(last + 1).trim());
+                file = file.substring(0, last).trim();
+            }
+        }
+
+        Rule rule = new Rule(spec, source, line);
+        rules.add(rule);
+
+        Bucket bucket = byId.get(id);
+        if (bucket == null) {
+            bucket = new Bucket();
+            byId.put(id, bucket);
+        }
+
+        file = normalize(file);
+        if (file.length() == 0 || "*".equals(file)) {
+            bucket.anyFile.add(rule);
+            return true;
+        }
+
+        /* Walk the literal directories, the rest is compiled to a pattern. */
+        Node node = bucket.root;
+        String[] segments = file.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            if (isGlob(segments[i])) {
+                rule.tail = toPattern(join(segments, i));
+                node.tails.add(rule);
+                return true;
+            }
+            Node child = node.children.get(segments[i]);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segments[i], child);
+            }
+            node = child;
+        }
+        node.exact.add(rule);
+
+        return true;
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    /**
+     * Look up a finding and count the hit on the first matching rule.
+     *
+     * @param id Error id of the finding
+     * @param file File of the primary location, may be null
+     * @param line Line of the primary location, 0 if unknown
+     * @return true: The finding is suppressed<br>
+     * false: No rule matches
+     */
+    boolean matches(String id, String file, int line) {
+        String path = normalize(file == null ? "" : file);
+        Rule rule = null;
+
+        if (id != null) {
+            rule = find(byId.get(id), path, line);
+        }
+        if (rule == null) {
+            rule = find(byId.get(ANY_ID), path, line);
+        }
+        if (rule == null) {
+            return false;
+        }
+
+        rule.hits++;
+        return true;
+    }
+
+    /**
+     * @return Rules which did not match any finding so far
+     */
+    List<Rule> getUnused() {
+        List<Rule> unused = new ArrayList<Rule>();
+
+        for (Rule rule : rules) {
+            if (rule.hits == 0) {
+                unused.add(rule);
+            }
+        }
+
+        return unused;
+    }
+
+    private static Rule find(Bucket bucket, String path, int line) {
+        if (bucket == null) {
+            return null;
+        }
+
+        Rule rule = first(bucket.anyFile, line);
+        if (rule != null || path.length() == 0) {
+            return rule;
+        }
+
+        Node node = bucket.root;
+        int start = 0;
+        while (true) {
+            String rest = path.substring(start);
+            for (Rule tail : node.tails) {
+                if (tail.matchesLine(line) && tail.tail.matcher(rest).matches()) {
+                    return tail;
+                }
+            }
+
+            int end = path.indexOf('/', start);
+            String segment = (end < 0) ? rest : path.substring(start, end);
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+            if (end < 0) {
+                return first(node.exact, line);
+            }
+            start = end + 1;
+        }
+    }
+
+    private static Rule first(List<Rule> candidates, int line) {
+        for (Rule rule : candidates) {
+            if (rule.matchesLine(line)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String file) {
+        String path = file.replace('\\', '/');
+
+        while (path.contains("//")) {
+            path = path.replace("//", "/");
+        }
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+
+        return path;
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.length() == 0 || s.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isGlob(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    private static String join(String[] segments, int from) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = from; i < segments.length; i++) {
+            if (i > from) {
+                sb.append('/');
+            }
+            sb.append(segments[i]);
+        }
+
+        return sb.toString();
+    }
+
+    /* Same as cppcheck, '*' also matches across directories. */
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * One suppression rule and the number of findings it suppressed.
+     */
+    static final class Rule {
+
+        private final String spec;
+        private final String source;
+        private final int line;
+        private Pattern tail;
+        private long hits;
+
+        private Rule(String spec, String source, int line) {
+            this.spec = spec;
+            this.source = source;
+            this.line = line;
+        }
+
+        private boolean matchesLine(int line) {
+            return this.line == 0 || this.line == line;
+        }
+
+        public String getSpec() {
+            return spec;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        @Override
+        public String toString() {
+            return spec + " (" + source + ")";
+        }
+    }
+
+    private static final class Bucket {
+
+        private final List<Rule> anyFile = new ArrayList<Rule>();
+        private final Node root = new Node();
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final List<Rule> exact = new ArrayList<Rule>();
+        private final List<Rule> tails = new ArrayList<Rule>();
+    }
+}
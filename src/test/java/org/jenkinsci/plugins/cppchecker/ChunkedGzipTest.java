@@ -0,0 +1,217 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkedGzipTest {
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+
+        try {
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+
+        return out.toByteArray();
+    }
+
+    private static ChunkedGzipReader write(File dir, byte[] report, int chunkSize, int writeSize)
+            throws IOException {
+        File data = new File(dir, "report.xml.gz");
+        File index = new File(dir, "report.xml.gz.idx");
+        data.deleteOnExit();
+        index.deleteOnExit();
+
+        OutputStream out = new ChunkedGzipOutputStream(new FileOutputStream(data),
+                new FileOutputStream(index), chunkSize);
+        for (int i = 0; i < report.length; i += writeSize) {
+            if (writeSize == 1) {
+                out.write(report[i]);
+            } else {
+                out.write(report, i, Math.min(writeSize, report.length - i));
+            }
+        }
+        out.close();
+
+        return new ChunkedGzipReader(data, index);
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = File.createTempFile("chunked", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static byte[] lines(int count) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            sb.append("<error id=\"e").append(i).append("\" msg=\"m\"/>\n");
+        }
+
+        return sb.toString().getBytes("UTF-8");
+    }
+
+    @Test
+    public void readsAsOneGzipFile() throws IOException {
+        File dir = tempDir();
+        byte[] report = lines(5000);
+
+        for (int writeSize : new int[]{1, 7, 5000}) {
+            ChunkedGzipReader reader = write(dir, report, 4096, writeSize);
+
+            assertTrue(reader.getChunkCount() > 1);
+            assertEquals(report.length, reader.getLength());
+            assertArrayEquals(report, readAll(new GZIPInputStream(
+                    new FileInputStream(new File(dir, "report.xml.gz")))));
+        }
+    }
+
+    @Test
+    public void writesEmptyReportAsValidGzip() throws IOException {
+        File dir = tempDir();
+        ChunkedGzipReader reader = write(dir, new byte[0], 4096, 7);
+
+        assertArrayEquals(new byte[0], readAll(new GZIPInputStream(
+                new FileInputStream(new File(dir, "report.xml.gz")))));
+        assertEquals(1, reader.getChunkCount());
+        assertEquals(0, reader.getLength());
+        assertArrayEquals(new byte[0], readAll(reader.openChunk(0)));
+        assertEquals(-1, reader.findChunk(0));
+    }
+
+    @Test
+    public void chunksStartAtLines() throws IOException {
+        File dir = tempDir();
+        byte[] report = lines(5000);
+        ChunkedGzipReader reader = write(dir, report, 4096, 333);
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+
+        for (int c = 0; c < reader.getChunkCount(); c++) {
+            byte[] chunk = readAll(reader.openChunk(c));
+            assertEquals(all.size(), reader.getOffset(c));
+            assertEquals('<', chunk[0]);
+            all.write(chunk);
+        }
+        assertArrayEquals(report, all.toByteArray());
+
+        int c = reader.findChunk(100000);
+        assertTrue(reader.getOffset(c) <= 100000);
+        assertEquals(-1, reader.findChunk(report.length));
+    }
+
+    @Test
+    public void forcedCutKeepsUtf8Characters() throws IOException {
+        File dir = tempDir();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("\u00e9\u4e2d");
+        }
+        byte[] report = sb.toString().getBytes("UTF-8");
+
+        for (int writeSize : new int[]{1, 100}) {
+            ChunkedGzipReader reader = write(dir, report, 1000, writeSize);
+
+            assertTrue(reader.getChunkCount() > 1);
+            for (int c = 0; c < reader.getChunkCount(); c++) {
+                byte[] chunk = readAll(reader.openChunk(c));
+                assertTrue((chunk[0] & 0xC0) != 0x80);
+                assertEquals(chunk.length, new String(chunk, "UTF-8").getBytes("UTF-8").length);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnknownChunk() throws IOException {
+        ChunkedGzipReader reader = write(tempDir(), lines(10), 4096, 7);
+
+        try {
+            reader.openChunk(reader.getChunkCount());
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("No chunk"));
+        }
+        try {
+            reader.getOffset(-1);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("No chunk"));
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedReport() throws IOException {
+        File dir = tempDir();
+        ChunkedGzipReader reader = write(dir, lines(5000), 4096, 7);
+        File data = new File(dir, "report.xml.gz");
+
+        RandomAccessFile file = new RandomAccessFile(data, "rw");
+        try {
+            file.setLength(data.length() / 2);
+        } finally {
+            file.close();
+        }
+
+        readAll(reader.openChunk(0));
+        try {
+            reader.openChunk(reader.getChunkCount() - 1);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("truncated"));
+        }
+    }
+
+    @Test
+    public void closesOutputWhenWriteFails() throws IOException {
+        final boolean[] closed = new boolean[2];
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        OutputStream index = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[1] = true;
+            }
+        };
+
+        OutputStream out = new ChunkedGzipOutputStream(failing, index, 4096);
+        out.write(lines(1));
+        try {
+            out.close();
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertEquals("disk full", expected.getMessage());
+        }
+        assertTrue(closed[0]);
+        assertTrue(closed[1]);
+    }
+}
@@ -0,0 +1,134 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SuppressionFilterTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<results version=\"2\">\n<errors>\n";
+    private static final String FOOTER = "</errors>\n</results>\n";
+
+    private SuppressionFilter filter;
+
+    private String filter(String xml, String... specs) throws IOException {
+        SuppressionIndex index = new SuppressionIndex();
+        for (String spec : specs) {
+            index.add(spec, "test");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter = new SuppressionFilter(out, index);
+
+        /* Odd write sizes so tags are split across writes. */
+        byte[] bytes = xml.getBytes("UTF-8");
+        for (int i = 0; i < bytes.length; i += 7) {
+            filter.write(bytes, i, Math.min(7, bytes.length - i));
+        }
+        filter.close();
+
+        return out.toString("UTF-8");
+    }
+
+    private static String v2(String id, String file, int line) {
+        return "<error id=\"" + id + "\" severity=\"error\" msg=\"m\" verbose=\"v\">\n"
+                + "<location file=\"" + file + "\" line=\"" + line + "\"/>\n"
+                + "</error>\n";
+    }
+
+    @Test
+    public void dropsSuppressedVersion2Errors() throws IOException {
+        String kept = v2("uninitvar", "src/b.cpp", 43);
+        String xml = HEADER + v2("memleak", "./src/a.cpp", 3) + kept + FOOTER;
+
+        assertEquals(HEADER + "\n" + kept + FOOTER, filter(xml, "memleak:src/a.cpp"));
+        assertEquals(2, filter.getFindings());
+        assertEquals(1, filter.getSuppressed());
+    }
+
+    @Test
+    public void usesFirstLocation() throws IOException {
+        String xml = HEADER + "<error id=\"nullPointer\" msg=\"m\">\n"
+                + "<location file=\"src/a.cpp\" line=\"3\"/>\n"
+                + "<location file=\"src/b.cpp\" line=\"9\"/>\n"
+                + "</error>\n" + FOOTER;
+
+        assertEquals(xml, filter(xml, "nullPointer:src/b.cpp"));
+        assertEquals(HEADER + "\n" + FOOTER, filter(xml, "nullPointer:src/a.cpp:3"));
+    }
+
+    @Test
+    public void dropsSuppressedVersion1Errors() throws IOException {
+        String kept = "<error file=\"src/c.cpp\" line=\"1\" id=\"memleak\" severity=\"error\" msg=\"m\"/>\n";
+        String xml = "<results>\n"
+                + "<error file=\"third_party/x.c\" line=\"1\" id=\"memleak\" severity=\"error\" msg=\"m\"/>\n"
+                + kept + "</results>\n";
+
+        assertEquals("<results>\n\n" + kept + "</results>\n", filter(xml, "*:third_party/*"));
+    }
+
+    @Test
+    public void handlesLineEndsAndQuotesInAttributes() throws IOException {
+        String xml = "<results>\n"
+                + "<error file=\"src/a.cpp\" line=\"1\" id=\"memleak\" msg=\"a &gt; b\nand &quot;c&quot;\"/>\n"
+                + "<error file=\"src/b.cpp\" line=\"2\" id=\"memleak\" msg='x > y'/>\n"
+                + "</results>\n";
+
+        assertEquals("<results>\n\n"
+                + "<error file=\"src/b.cpp\" line=\"2\" id=\"memleak\" msg='x > y'/>\n"
+                + "</results>\n", filter(xml, "memleak:src/a.cpp"));
+        assertEquals(2, filter.getFindings());
+    }
+
+    @Test
+    public void splitSelfClosingVersion2ErrorIsNotMerged() throws IOException {
+        String first = "<error id=\"missingInclude\" severity=\"information\"\nmsg=\"m\"/>\n";
+        String second = v2("memleak", "src/a.cpp", 3);
+
+        assertEquals(HEADER + first + "\n" + FOOTER, filter(HEADER + first + second + FOOTER, "memleak"));
+        assertEquals(2, filter.getFindings());
+    }
+
+    @Test
+    public void unescapesFileNames() throws IOException {
+        String xml = "<results>\n"
+                + "<error file=\"src/a&amp;b.cpp\" line=\"1\" id=\"memleak\" msg=\"m\"/>\n"
+                + "</results>\n";
+
+        assertEquals("<results>\n\n</results>\n", filter(xml, "memleak:src/a&b.cpp"));
+    }
+
+    @Test
+    public void keepsTruncatedReport() throws IOException {
+        String xml = HEADER + "<error id=\"memleak\" msg=\"m\">\n<location file=\"src/a.cpp\" line=\"3\"/>\n<loc";
+
+        assertEquals(xml, filter(xml, "memleak"));
+        assertEquals(0, filter.getFindings());
+        assertEquals(1, filter.getUnfiltered());
+    }
+
+    @Test
+    public void keepsUnterminatedErrorBeforeNextOne() throws IOException {
+        String open = "<error id=\"memleak\" msg=\"m\">\n<location file=\"src/a.cpp\" line=\"3\"/>\n";
+        String next = v2("uninitvar", "src/b.cpp", 4);
+
+        assertEquals(HEADER + open + "\n" + FOOTER, filter(HEADER + open + next + FOOTER, "uninitvar"));
+        assertEquals(1, filter.getUnfiltered());
+    }
+
+    @Test
+    public void limitsBufferedElement() throws IOException {
+        StringBuilder big = new StringBuilder("<error id=\"memleak\" msg=\"m\">\n");
+        while (big.length() <= SuppressionFilter.MAX_BLOCK) {
+            big.append("<symbol>s</symbol>\n");
+        }
+        big.append("</error>\n");
+        String xml = HEADER + big + FOOTER;
+
+        assertEquals(xml, filter(xml, "memleak"));
+        assertEquals(1, filter.getUnfiltered());
+    }
+}
@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.cppchecker;
+
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SuppressionIndexTest {
+
+    private static SuppressionIndex index(String... specs) {
+        SuppressionIndex index = new SuppressionIndex();
+
+        for (String spec : specs) {
+            index.add(spec, "test");
+        }
+
+        return index;
+    }
+
+    @Test
+    public void matchesIdOnly() {
+        SuppressionIndex index = index("varScope");
+
+        assertTrue(index.matches("varScope", "src/a.cpp", 1));
+        assertTrue(index.matches("varScope", null, 0));
+        assertFalse(index.matches("memleak", "src/a.cpp", 1));
+    }
+
+    @Test
+    public void matchesExactFileAndLine() {
+        SuppressionIndex index = index("memleak:src/a.cpp", "uninitvar:src/b.cpp:42");
+
+        assertTrue(index.matches("memleak", "src/a.cpp", 7));
+        assertFalse(index.matches("memleak", "src/a.cpp.orig", 7));
+        assertFalse(index.matches("memleak", "src", 7));
+        assertTrue(index.matches("uninitvar", "src/b.cpp", 42));
+        assertFalse(index.matches("uninitvar", "src/b.cpp", 43));
+    }
+
+    @Test
+    public void normalizesPaths() {
+        SuppressionIndex index = index("memleak:./src//a.cpp", "nullPointer:src\\win\\b.cpp");
+
+        assertTrue(index.matches("memleak", "./src/a.cpp", 1));
+        assertTrue(index.matches("memleak", "src/a.cpp", 1));
+        assertTrue(index.matches("nullPointer", "src/win/b.cpp", 1));
+        assertTrue(index.matches("nullPointer", ".\\src\\win\\b.cpp", 1));
+    }
+
+    @Test
+    public void parsesWindowsDrive() {
+        SuppressionIndex index = index("memleak:C:\\src\\a.cpp", "uninitvar:C:\\src\\b.cpp:12");
+
+        assertTrue(index.matches("memleak", "C:\\src\\a.cpp", 3));
+        assertTrue(index.matches("memleak", "C:/src/a.cpp", 3));
+        assertTrue(index.matches("uninitvar", "C:\\src\\b.cpp", 12));
+        assertFalse(index.matches("uninitvar", "C:\\src\\b.cpp", 13));
+    }
+
+    @Test
+    public void matchesGlobInFirstSegment() {
+        SuppressionIndex index = index("*:*/gen/*");
+
+        assertTrue(index.matches("memleak", "lib/gen/a.cpp", 1));
+        assertTrue(index.matches("nullPointer", "a/b/gen/c/d.cpp", 1));
+        assertFalse(index.matches("memleak", "gen/a.cpp", 1));
+        assertFalse(index.matches("memleak", "lib/generated/a.cpp", 1));
+    }
+
+    @Test
+    public void matchesGlobInNestedSegment() {
+        SuppressionIndex index = index("nullPointer:src/legacy/*", "memleak:third_party/x?/*.c");
+
+        assertTrue(index.matches("nullPointer", "src/legacy/a.cpp", 1));
+        assertTrue(index.matches("nullPointer", "src/legacy/deep/a.cpp", 1));
+        assertFalse(index.matches("nullPointer", "src/a.cpp", 1));
+        assertTrue(index.matches("memleak", "third_party/x1/q/r.c", 1));
+        assertFalse(index.matches("memleak", "third_party/x12/r.c", 1));
+        assertFalse(index.matches("memleak", "third_party/x1/r.cpp", 1));
+    }
+
+    @Test
+    public void treatsRegexCharactersLiterally() {
+        SuppressionIndex index = index("memleak:src/a+b(1).cpp", "nullPointer:src/[x]*.c");
+
+        assertTrue(index.matches("memleak", "src/a+b(1).cpp", 1));
+        assertFalse(index.matches("memleak", "src/aab1.cpp", 1));
+        assertTrue(index.matches("nullPointer", "src/[x]y.c", 1));
+        assertFalse(index.matches("nullPointer", "src/xy.c", 1));
+    }
+
+    @Test
+    public void reportsUnusedRules() throws Exception {
+        SuppressionIndex index = new SuppressionIndex();
+        index.load(new StringReader("# comment\n\n// comment\nmemleak:src/a.cpp\nunused:foo.c\n"), "supp.txt");
+
+        assertEquals(2, index.size());
+        assertTrue(index.matches("memleak", "src/a.cpp", 1));
+
+        List<SuppressionIndex.Rule> unused = index.getUnused();
+        assertEquals(1, unused.size());
+        assertEquals("unused:foo.c", unused.get(0).getSpec());
+        assertEquals("supp.txt:5", unused.get(0).getSource());
+    }
+}